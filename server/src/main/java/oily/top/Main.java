@@ -2,9 +2,14 @@ package oily.top;
 
 import oily.top.network.GameServer;
 import oily.top.db.Database;
+import oily.top.network.WarmUp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 public class Main {
 
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
@@ -17,28 +22,47 @@ public class Main {
             // 关闭钩子,Ctrl+C 关闭时执行
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 logger.info("正在关闭资源...");
+                if (gameServer != null) {
+                    gameServer.stop();
+                }
                 Database.getInstance().close();
-                gameServer.stop();
                 logger.info("数据库和服务器已关闭");
             }));
-            // 初始化数据库
-            Database.getInstance().init();
-            logger.info("数据库初始化完成");
 
             gameServer = new GameServer(8080);
-            // 启动服务器线程
-            Thread serverThread = new Thread(() -> {
-                try {
-                    gameServer.start();
-                } catch (InterruptedException e) {
-                    logger.info("服务器线程被中断");
-                } catch (Exception e) {
-                    logger.error("服务器运行异常", e);
-                }
-            });
 
-            // 保持服务器运行
-            serverThread.start();
+            ExecutorService startupExecutor = Executors.newFixedThreadPool(2);
+            try {
+                // 并行初始化数据库和网络
+                CompletableFuture.allOf(
+                        CompletableFuture.runAsync(() -> Database.getInstance().init(), startupExecutor),
+                        CompletableFuture.runAsync(gameServer::init, startupExecutor)
+                ).join();
+                logger.info("数据库和网络初始化完成");
+
+                // 先绑定端口，预热期间 /ready 返回 503，WebSocket 连接被拒绝
+                Thread serverThread = new Thread(() -> {
+                    try {
+                        gameServer.start();
+                    } catch (InterruptedException e) {
+                        logger.info("服务器线程被中断");
+                    } catch (Exception e) {
+                        logger.error("服务器运行异常", e);
+                    }
+                });
+                serverThread.start();
+
+                // 预热连接池、序列化器和消息处理路径
+                CompletableFuture.allOf(
+                        CompletableFuture.runAsync(Main::warmUpDatabase, startupExecutor),
+                        CompletableFuture.runAsync(Main::warmUpHandler, startupExecutor)
+                ).join();
+                logger.info("预热完成");
+            } finally {
+                startupExecutor.shutdown();
+            }
+
+            gameServer.markReady();
             logger.info("服务器已在端口 8080 启动");
             logger.info("按 Ctrl+C 停止服务器");
 
@@ -47,4 +71,20 @@ public class Main {
             System.exit(1);
         }
     }
+
+    private static void warmUpDatabase() {
+        try {
+            Database.getInstance().warmUp();
+        } catch (Exception e) {
+            throw new RuntimeException("数据库预热失败", e);
+        }
+    }
+
+    private static void warmUpHandler() {
+        try {
+            WarmUp.run();
+        } catch (Exception e) {
+            throw new RuntimeException("消息处理预热失败", e);
+        }
+    }
 }
@@ -2,18 +2,23 @@ package oily.top.db;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import org.h2.mvstore.MVStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Database {
     private static final Logger logger = LoggerFactory.getLogger(Database.class);
     private static final Database instance = new Database();
     
     private HikariDataSource dataSource;
+    // 玩家热数据直接存储在 MVStore 中，与 players 表分开
+    private MVStore hotStore;
     
     private Database() {}
     
@@ -41,6 +46,17 @@ public class Database {
             
             logger.info("数据库连接池初始化成功");
             
+            // 热数据存储，后台每秒提交一次，使用SQL存储时不打开
+            if ("mvstore".equals(PlayerDAO.getStateStoreType())) {
+                hotStore = new MVStore.Builder()
+                        .fileName("./data/oilytop_hot.mv")
+                        .autoCommitBufferSize(1024)
+                        .open();
+                hotStore.setAutoCommitDelay(1000);
+                
+                logger.info("热数据存储初始化成功");
+            }
+            
         } catch (Exception e) {
             logger.error("数据库初始化失败", e);
             throw new RuntimeException("数据库初始化失败", e);
@@ -75,16 +91,47 @@ public class Database {
 "                    attributes CLOB, " +
 "                    FOREIGN KEY (player_id) REFERENCES players(id) " +
 "                )");
+            // 登录时按 player_id 加载背包，保存时按 (player_id, position) 定位格子，每格只有一行
+            stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS uk_player_items_slot " +
+"                    ON player_items (player_id, position)");
             
             logger.info("数据库表创建完成");
         }
     }
     
+    // 预热连接池，一次借出所有连接并执行查询，让第一批玩家不用等待建立连接
+    public void warmUp() throws SQLException {
+        int size = dataSource.getMaximumPoolSize();
+        List<Connection> connections = new ArrayList<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                Connection conn = dataSource.getConnection();
+                connections.add(conn);
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("SELECT 1");
+                }
+            }
+        } finally {
+            for (Connection conn : connections) {
+                conn.close();
+            }
+        }
+        logger.info("数据库连接池预热完成: {} 个连接", size);
+    }
+    
     public Connection getConnection() throws SQLException {
         return dataSource.getConnection();
     }
     
+    public MVStore getHotStore() {
+        return hotStore;
+    }
+    
     public void close() {
+        if (hotStore != null && !hotStore.isClosed()) {
+            hotStore.close();
+            logger.info("热数据存储已关闭");
+        }
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
             logger.info("数据库连接池已关闭");
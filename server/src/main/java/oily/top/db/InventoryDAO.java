@@ -0,0 +1,110 @@
+package oily.top.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.List;
+import oily.top.game.Inventory;
+import oily.top.game.Player;
+
+public class InventoryDAO {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryDAO.class);
+
+    private static final String LOAD_SQL =
+            "SELECT item_id, count, position, attributes FROM player_items WHERE player_id = ?";
+    private static final String UPSERT_SQL =
+            "MERGE INTO player_items (player_id, position, item_id, count, attributes) " +
+            "KEY (player_id, position) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_SQL =
+            "DELETE FROM player_items WHERE player_id = ? AND position = ?";
+
+    // 登录时一次查询加载整个背包
+    public void loadInventory(Player player) throws SQLException {
+        Inventory inventory = player.getInventory();
+
+        try (Connection conn = Database.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(LOAD_SQL)) {
+
+            pstmt.setInt(1, requireDatabaseId(player));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    inventory.loadSlot(rs.getInt("position"), rs.getInt("item_id"),
+                            rs.getInt("count"), rs.getString("attributes"));
+                }
+            }
+        }
+        logger.debug("玩家背包已加载: {}", player.getName());
+    }
+
+    /**
+     * 只保存修改过的格子，批量写入和删除
+     * 
+     * 同一玩家的保存(定时保存、下线保存)必须串行执行，否则先取出的旧快照可能最后提交，
+     * 而修改标记已被清除，数据库中留下旧数据。这里在背包的保存锁上同步
+     */
+    public void saveInventory(Player player) throws SQLException {
+        Inventory inventory = player.getInventory();
+        int playerId = requireDatabaseId(player);
+
+        synchronized (inventory.getSaveLock()) {
+            List<Inventory.SlotChange> changes = inventory.drainChanges();
+            if (changes.isEmpty()) {
+                return;
+            }
+
+            try (Connection conn = Database.getInstance().getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement upsert = conn.prepareStatement(UPSERT_SQL);
+                     PreparedStatement delete = conn.prepareStatement(DELETE_SQL)) {
+
+                    int upserts = 0;
+                    int deletes = 0;
+                    for (Inventory.SlotChange change : changes) {
+                        if (change.isEmpty()) {
+                            delete.setInt(1, playerId);
+                            delete.setInt(2, change.slot);
+                            delete.addBatch();
+                            deletes++;
+                        } else {
+                            upsert.setInt(1, playerId);
+                            upsert.setInt(2, change.slot);
+                            upsert.setInt(3, change.itemId);
+                            upsert.setInt(4, change.count);
+                            upsert.setString(5, change.attributes);
+                            upsert.addBatch();
+                            upserts++;
+                        }
+                    }
+                    if (upserts > 0) {
+                        upsert.executeBatch();
+                    }
+                    if (deletes > 0) {
+                        delete.executeBatch();
+                    }
+                    conn.commit();
+                    logger.debug("玩家背包已保存: {}, 更新 {} 格, 删除 {} 格",
+                            player.getName(), upserts, deletes);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                // 保存失败，恢复修改标记等待下次保存
+                inventory.markDirty(changes);
+                throw e;
+            }
+        }
+    }
+
+    // player_items.player_id 外键指向 players.id，不能使用进程内的 Player ID
+    private static int requireDatabaseId(Player player) {
+        int databaseId = player.getDatabaseId();
+        if (databaseId <= 0) {
+            throw new IllegalStateException("玩家未从数据库加载: " + player.getName());
+        }
+        return databaseId;
+    }
+}
@@ -0,0 +1,77 @@
+package oily.top.db;
+
+import java.nio.ByteBuffer;
+import oily.top.game.Player;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+
+/**
+ * 直接基于 H2 MVStore 的热数据存储，不经过连接池和SQL层
+ * 
+ * 每个玩家一条定长二进制记录: x(float) y(float) direction(float) experience(long)
+ * 
+ * 以玩家名(players 表中唯一)为键，Player 的ID是进程内计数，重启后会变
+ */
+public class MVStorePlayerStateStore implements PlayerStateStore {
+
+    public static final String MAP_NAME = "player_state";
+
+    // 记录版本号，以后扩展字段时用于兼容旧记录
+    private static final byte RECORD_VERSION = 1;
+    private static final int RECORD_SIZE = 1 + 4 + 4 + 4 + 8;
+
+    private final MVMap<String, byte[]> states;
+
+    public MVStorePlayerStateStore() {
+        this(requireHotStore());
+    }
+
+    public MVStorePlayerStateStore(MVStore store) {
+        this.states = store.openMap(MAP_NAME);
+    }
+
+    @Override
+    public void save(Player player) {
+        states.put(player.getName(), encode(player));
+    }
+
+    @Override
+    public boolean load(Player player) {
+        byte[] record = states.get(player.getName());
+        if (record == null) {
+            return false;
+        }
+        decode(record, player);
+        return true;
+    }
+
+    private static MVStore requireHotStore() {
+        MVStore store = Database.getInstance().getHotStore();
+        if (store == null) {
+            throw new IllegalStateException("热数据存储未打开，请检查 " + PlayerDAO.STATE_STORE_PROPERTY);
+        }
+        return store;
+    }
+
+    static byte[] encode(Player player) {
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE);
+        buf.put(RECORD_VERSION);
+        buf.putFloat(player.getX());
+        buf.putFloat(player.getY());
+        buf.putFloat(player.getDirection());
+        buf.putLong(player.getExperience());
+        return buf.array();
+    }
+
+    static void decode(byte[] record, Player player) {
+        ByteBuffer buf = ByteBuffer.wrap(record);
+        byte version = buf.get();
+        if (version != RECORD_VERSION) {
+            throw new IllegalStateException("未知的玩家热数据版本: " + version);
+        }
+        player.setX(buf.getFloat());
+        player.setY(buf.getFloat());
+        player.setDirection(buf.getFloat());
+        player.setExperience(buf.getLong());
+    }
+}
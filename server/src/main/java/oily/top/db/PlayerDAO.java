@@ -11,8 +11,44 @@ import oily.top.game.Player;
 public class PlayerDAO {
     private static final Logger logger = LoggerFactory.getLogger(PlayerDAO.class);
     
+    // 热数据存储方式: mvstore 或 sql
+    public static final String STATE_STORE_PROPERTY = "oilytop.stateStore";
+    
+    private final PlayerStateStore stateStore;
+    
+    public PlayerDAO() {
+        this(createStateStore(getStateStoreType()));
+    }
+    
+    public PlayerDAO(PlayerStateStore stateStore) {
+        this.stateStore = stateStore;
+    }
+    
+    static String getStateStoreType() {
+        return System.getProperty(STATE_STORE_PROPERTY, "mvstore");
+    }
+    
+    private static PlayerStateStore createStateStore(String type) {
+        switch (type) {
+            case "sql":
+                return new SqlPlayerStateStore();
+            case "mvstore":
+                return new MVStorePlayerStateStore();
+            default:
+                throw new IllegalArgumentException("未知的热数据存储方式: " + type);
+        }
+    }
+    
+    /**
+     * 保存玩家数据
+     * 
+     * 热数据(位置、朝向、经验)以 stateStore 为准: 使用 MVStore 时不再写入 players 表的
+     * experience/position_x/position_y 列，而是同时保存到 stateStore
+     */
     public void savePlayer(Player player) throws SQLException {
-        String sql = "            INSERT INTO players (account_id, name, level, experience, \n" +
+        boolean hotInTable = stateStore.usesPlayersTable();
+        String sql = hotInTable
+                ? "            INSERT INTO players (account_id, name, level, experience, \n" +
 "                                 position_x, position_y, last_login)\n" +
 "            VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)\n" +
 "            ON DUPLICATE KEY UPDATE\n" +
@@ -20,6 +56,11 @@ public class PlayerDAO {
 "                experience = VALUES(experience),\n" +
 "                position_x = VALUES(position_x),\n" +
 "                position_y = VALUES(position_y),\n" +
+"                last_login = VALUES(last_login)"
+                : "            INSERT INTO players (account_id, name, level, last_login)\n" +
+"            VALUES (?, ?, ?, CURRENT_TIMESTAMP)\n" +
+"            ON DUPLICATE KEY UPDATE\n" +
+"                level = VALUES(level),\n" +
 "                last_login = VALUES(last_login)";
         
         try (Connection conn = Database.getInstance().getConnection();
@@ -28,15 +69,21 @@ public class PlayerDAO {
             pstmt.setInt(1, 1); // 临时account_id
             pstmt.setString(2, player.getName());
             pstmt.setInt(3, player.getLevel());
-            pstmt.setLong(4, player.getExperience());
-            pstmt.setFloat(5, player.getX());
-            pstmt.setFloat(6, player.getY());
+            if (hotInTable) {
+                pstmt.setLong(4, player.getExperience());
+                pstmt.setFloat(5, player.getX());
+                pstmt.setFloat(6, player.getY());
+            }
             
             pstmt.executeUpdate();
-            logger.debug("玩家数据已保存: {}", player.getName());
         }
+        if (!hotInTable) {
+            stateStore.save(player);
+        }
+        logger.debug("玩家数据已保存: {}", player.getName());
     }
     
+    // 热数据以 stateStore 为准，stateStore 中没有记录时使用 players 表中的值
     public List<Player> loadAllPlayers() throws SQLException {
         List<Player> players = new ArrayList<>();
         String sql = "SELECT id, name, level, experience, position_x, position_y FROM players";
@@ -47,12 +94,15 @@ public class PlayerDAO {
             
             while (rs.next()) {
                 Player player = new Player(rs.getString("name"));
-                // 注意：这里需要设置ID，但Player的ID是自动生成的
-                // 在实际项目中需要更复杂的处理
+                // Player的ID是进程内生成的，数据库ID单独保存
+                player.setDatabaseId(rs.getInt("id"));
                 player.setLevel(rs.getInt("level"));
                 player.setExperience(rs.getLong("experience"));
                 player.setX(rs.getFloat("position_x"));
                 player.setY(rs.getFloat("position_y"));
+                if (!stateStore.usesPlayersTable()) {
+                    stateStore.load(player);
+                }
                 
                 players.add(player);
             }
@@ -60,4 +110,33 @@ public class PlayerDAO {
         
         return players;
     }
+    
+    // 登录时按玩家名读取 players 表中的ID，没有记录时返回false
+    public boolean loadDatabaseId(Player player) throws SQLException {
+        String sql = "SELECT id FROM players WHERE name = ?";
+        
+        try (Connection conn = Database.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, player.getName());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                player.setDatabaseId(rs.getInt("id"));
+                return true;
+            }
+        }
+    }
+    
+    // 保存玩家热数据(位置、朝向、经验)，频繁调用
+    public void savePlayerState(Player player) throws SQLException {
+        stateStore.save(player);
+        logger.debug("玩家热数据已保存: {}", player.getName());
+    }
+    
+    // 读取玩家热数据，没有记录时保持player原值
+    public boolean loadPlayerState(Player player) throws SQLException {
+        return stateStore.load(player);
+    }
 }
\ No newline at end of file
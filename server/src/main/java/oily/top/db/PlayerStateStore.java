@@ -0,0 +1,23 @@
+package oily.top.db;
+
+import java.sql.SQLException;
+import oily.top.game.Player;
+
+/**
+ * 玩家热数据存储(位置、朝向、经验)
+ * 
+ * 热数据写入频繁，只需要按玩家名存取，关系型和冷数据仍然保存在 players 表
+ */
+public interface PlayerStateStore {
+
+    // 保存玩家热数据
+    void save(Player player) throws SQLException;
+
+    // 读取玩家热数据到player，没有记录时返回false
+    boolean load(Player player) throws SQLException;
+
+    // 热数据是否就保存在 players 表的 experience/position_x/position_y 列中
+    default boolean usesPlayersTable() {
+        return false;
+    }
+}
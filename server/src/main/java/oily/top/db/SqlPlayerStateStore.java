@@ -0,0 +1,57 @@
+package oily.top.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import oily.top.game.Player;
+
+/**
+ * 基于 players 表的热数据存储，经过连接池和SQL层
+ * 
+ * 按玩家名(唯一)定位记录，players 表没有朝向字段，朝向不会被保存
+ */
+public class SqlPlayerStateStore implements PlayerStateStore {
+
+    private static final String UPDATE_SQL =
+            "UPDATE players SET experience = ?, position_x = ?, position_y = ? WHERE name = ?";
+    private static final String SELECT_SQL =
+            "SELECT experience, position_x, position_y FROM players WHERE name = ?";
+
+    @Override
+    public void save(Player player) throws SQLException {
+        try (Connection conn = Database.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(UPDATE_SQL)) {
+
+            pstmt.setLong(1, player.getExperience());
+            pstmt.setFloat(2, player.getX());
+            pstmt.setFloat(3, player.getY());
+            pstmt.setString(4, player.getName());
+
+            pstmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public boolean usesPlayersTable() {
+        return true;
+    }
+
+    @Override
+    public boolean load(Player player) throws SQLException {
+        try (Connection conn = Database.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_SQL)) {
+
+            pstmt.setString(1, player.getName());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                player.setExperience(rs.getLong("experience"));
+                player.setX(rs.getFloat("position_x"));
+                player.setY(rs.getFloat("position_y"));
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package oily.top.game;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 玩家背包，按格子存放物品
+ * 
+ * 每个格子用并列数组保存，修改过的格子记录在 dirty 中，保存时只写入这些格子
+ */
+public class Inventory {
+
+    private static final Logger logger = LoggerFactory.getLogger(Inventory.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    public static final int DEFAULT_CAPACITY = 40;
+    // 物品ID为0表示空格子
+    public static final int EMPTY = 0;
+
+    private final int[] itemIds;
+    private final int[] counts;
+    // attributes 原始JSON，用到时才解析
+    private final String[] attributes;
+    private final Object[] parsedAttributes;
+    private final BitSet dirty;
+    // 保存锁，同一背包的保存必须串行，和格子修改用的锁分开，保存期间不阻塞游戏逻辑
+    private final Object saveLock = new Object();
+
+    public Inventory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public Inventory(int capacity) {
+        this.itemIds = new int[capacity];
+        this.counts = new int[capacity];
+        this.attributes = new String[capacity];
+        this.parsedAttributes = new Object[capacity];
+        this.dirty = new BitSet(capacity);
+    }
+
+    // 格子变化，itemId 为 EMPTY 表示格子已清空
+    public static class SlotChange {
+        public final int slot;
+        public final int itemId;
+        public final int count;
+        public final String attributes;
+
+        public SlotChange(int slot, int itemId, int count, String attributes) {
+            this.slot = slot;
+            this.itemId = itemId;
+            this.count = count;
+            this.attributes = attributes;
+        }
+
+        public boolean isEmpty() {
+            return itemId == EMPTY;
+        }
+    }
+
+    public Object getSaveLock() {
+        return saveLock;
+    }
+
+    public int getCapacity() {
+        return itemIds.length;
+    }
+
+    public synchronized int getItemId(int slot) {
+        return itemIds[slot];
+    }
+
+    public synchronized int getCount(int slot) {
+        return counts[slot];
+    }
+
+    public synchronized boolean isEmpty(int slot) {
+        return itemIds[slot] == EMPTY;
+    }
+
+    public synchronized String getRawAttributes(int slot) {
+        return attributes[slot];
+    }
+
+    // 读取物品属性，第一次访问时解析并缓存
+    @SuppressWarnings("unchecked")
+    public synchronized Map<String, Object> getAttributes(int slot) {
+        Object cached = parsedAttributes[slot];
+        if (cached == null) {
+            cached = parseAttributes(attributes[slot]);
+            parsedAttributes[slot] = cached;
+        }
+        return (Map<String, Object>) cached;
+    }
+
+    public synchronized void setSlot(int slot, int itemId, int count, String attributes) {
+        if (itemId == EMPTY || count <= 0) {
+            clearSlot(slot);
+            return;
+        }
+        put(slot, itemId, count, attributes);
+        dirty.set(slot);
+    }
+
+    public synchronized void setCount(int slot, int count) {
+        if (itemIds[slot] == EMPTY) {
+            return;
+        }
+        if (count <= 0) {
+            clearSlot(slot);
+            return;
+        }
+        counts[slot] = count;
+        dirty.set(slot);
+    }
+
+    public synchronized void clearSlot(int slot) {
+        if (itemIds[slot] == EMPTY) {
+            return;
+        }
+        put(slot, EMPTY, 0, null);
+        dirty.set(slot);
+    }
+
+    /**
+     * 添加物品，先叠加到同类格子，再放入空格子
+     * 
+     * 带属性的物品不叠加
+     * 
+     * @return 放不下的数量
+     */
+    public synchronized int addItem(int itemId, int count, int maxStack, String attributes) {
+        if (itemId == EMPTY || count <= 0 || maxStack <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "无效的物品参数: itemId=%d, count=%d, maxStack=%d", itemId, count, maxStack));
+        }
+        int remaining = count;
+        if (attributes == null) {
+            for (int slot = 0; slot < itemIds.length && remaining > 0; slot++) {
+                if (itemIds[slot] == itemId && this.attributes[slot] == null && counts[slot] < maxStack) {
+                    int added = Math.min(maxStack - counts[slot], remaining);
+                    counts[slot] += added;
+                    remaining -= added;
+                    dirty.set(slot);
+                }
+            }
+        }
+        for (int slot = 0; slot < itemIds.length && remaining > 0; slot++) {
+            if (itemIds[slot] == EMPTY) {
+                int added = Math.min(maxStack, remaining);
+                put(slot, itemId, added, attributes);
+                remaining -= added;
+                dirty.set(slot);
+            }
+        }
+        return remaining;
+    }
+
+    // 从数据库加载格子，不标记为修改
+    public synchronized void loadSlot(int slot, int itemId, int count, String attributes) {
+        if (slot < 0 || slot >= itemIds.length) {
+            logger.warn("背包格子越界，忽略: slot={}, itemId={}", slot, itemId);
+            return;
+        }
+        put(slot, itemId, count, attributes);
+    }
+
+    public synchronized boolean isDirty() {
+        return !dirty.isEmpty();
+    }
+
+    // 取出所有修改过的格子并清除修改标记，保存失败时用 markDirty 恢复
+    public synchronized List<SlotChange> drainChanges() {
+        if (dirty.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<SlotChange> changes = new ArrayList<>(dirty.cardinality());
+        for (int slot = dirty.nextSetBit(0); slot >= 0; slot = dirty.nextSetBit(slot + 1)) {
+            changes.add(new SlotChange(slot, itemIds[slot], counts[slot], attributes[slot]));
+        }
+        dirty.clear();
+        return changes;
+    }
+
+    public synchronized void markDirty(List<SlotChange> changes) {
+        for (SlotChange change : changes) {
+            dirty.set(change.slot);
+        }
+    }
+
+    private void put(int slot, int itemId, int count, String attributes) {
+        itemIds[slot] = itemId;
+        counts[slot] = count;
+        this.attributes[slot] = attributes;
+        parsedAttributes[slot] = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> parseAttributes(String json) {
+        if (json == null || json.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            return Collections.unmodifiableMap(mapper.readValue(json, Map.class));
+        } catch (Exception e) {
+            logger.warn("物品属性解析失败: {}", json, e);
+            return Collections.emptyMap();
+        }
+    }
+}
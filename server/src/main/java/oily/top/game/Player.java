@@ -4,12 +4,17 @@ public class Player {
     private static int nextId = 1;
     
     private final int id;
+    // players 表中的ID，重启后不变；未从数据库加载时为0
+    private int databaseId;
     private String name;
     private float x;
     private float y;
     private float direction;
     private int level;
     private long experience;
+    private final Inventory inventory = new Inventory();
+    // 最后一次变化时的世界版本号
+    private volatile long version;
     
     public Player(String name) {
         this.id = nextId++;
@@ -24,6 +29,9 @@ public class Player {
     // Getters and Setters
     public int getId() { return id; }
     
+    public int getDatabaseId() { return databaseId; }
+    public void setDatabaseId(int databaseId) { this.databaseId = databaseId; }
+    
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
     
@@ -42,6 +50,11 @@ public class Player {
     public long getExperience() { return experience; }
     public void setExperience(long experience) { this.experience = experience; }
     
+    public Inventory getInventory() { return inventory; }
+    
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+    
     @Override
     public String toString() {
         return String.format("Player{id=%d, name='%s', pos=(%.1f, %.1f)}", 
@@ -3,14 +3,23 @@ package oily.top.game;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import oily.top.network.Protocol;
 
 public class World {
     private static final World instance = new World();
+    private static final int MAX_REMOVALS = 1024;
     
     private final Map<Integer, Player> players = new ConcurrentHashMap<>();
     private final Random random = new Random();
     
+    // 世界版本号，玩家加入、移动、离开时递增，断线重连时用于计算增量
+    private final AtomicLong version = new AtomicLong();
+    // 最近离开的玩家 {版本号, 玩家ID}，只保留最近 MAX_REMOVALS 条
+    private final ArrayDeque<long[]> removals = new ArrayDeque<>();
+    // 比这个版本更早的离开记录已被丢弃，无法计算增量
+    private long removalsFloor;
+    
     private World() {}
     
     public static World getInstance() {
@@ -24,10 +33,21 @@ public class World {
         player.setX(random.nextInt(700) + 50.0f);
         player.setY(random.nextInt(500) + 50.0f);
         
+        // 先放入世界再更新版本号，读取方要么看到这个玩家，要么拿到的版本比它旧
         players.put(player.getId(), player);
+        markChanged(player);
         return player;
     }
     
+    // 玩家状态修改完成后最后调用，更新玩家的版本号
+    public void markChanged(Player player) {
+        player.setVersion(version.incrementAndGet());
+    }
+    
+    public long getVersion() {
+        return version.get();
+    }
+    
     public Player getPlayer(int playerId) {
         return players.get(playerId);
     }
@@ -51,7 +71,50 @@ public class World {
     }
     
     public Player removePlayer(int playerId) {
-        return players.remove(playerId);
+        Player player = players.remove(playerId);
+        if (player != null) {
+            synchronized (removals) {
+                removals.addLast(new long[] {version.incrementAndGet(), playerId});
+                if (removals.size() > MAX_REMOVALS) {
+                    removalsFloor = removals.removeFirst()[0];
+                }
+            }
+        }
+        return player;
+    }
+    
+    /**
+     * 计算某个版本之后的变化
+     * 
+     * @return 版本太旧无法计算增量时返回 null，此时需要发送完整世界状态
+     */
+    public Protocol.WorldDelta getChangesSince(long since) {
+        long current = version.get();
+        List<Integer> removed = new ArrayList<>();
+        synchronized (removals) {
+            if (since < removalsFloor || since > current) {
+                return null;
+            }
+            for (long[] removal : removals) {
+                if (removal[0] > since) {
+                    removed.add((int) removal[1]);
+                }
+            }
+        }
+        
+        List<Protocol.PlayerData> changed = new ArrayList<>();
+        for (Player player : players.values()) {
+            if (player.getVersion() > since) {
+                changed.add(new Protocol.PlayerData(
+                    player.getId(),
+                    player.getName(),
+                    player.getX(),
+                    player.getY(),
+                    player.getDirection()
+                ));
+            }
+        }
+        return new Protocol.WorldDelta(current, changed, removed);
     }
     
     public int getPlayerCount() {
@@ -17,12 +17,12 @@ public class GameHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
 
     private static final Logger logger = LoggerFactory.getLogger(GameHandler.class);
 
-    private static final Map<String, Integer> playerSessions = new HashMap<>();
+    private final SessionManager sessions = SessionManager.getInstance();
     private final World world = World.getInstance();
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, WebSocketFrame frame) throws Exception {
-        logger.info("收到 WebSocket 帧: {}", frame.getClass().getSimpleName());
+        logger.debug("收到 WebSocket 帧: {}", frame.getClass().getSimpleName());
         if (frame instanceof TextWebSocketFrame) {
             String request = ((TextWebSocketFrame) frame).text();
             handleMessage(ctx, request);
@@ -41,6 +41,14 @@ public class GameHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
                     handleConnectRequest(ctx, (Map<String, Object>) msg.data);
                     break;
 
+                case Protocol.MSG_RESUME_REQUEST:
+                    handleResumeRequest(ctx, (Map<String, Object>) msg.data);
+                    break;
+
+                case Protocol.MSG_PLAYER_LEAVE:
+                    handlePlayerLeave(ctx);
+                    break;
+
                 case Protocol.MSG_PLAYER_MOVE:
                     handlePlayerMove(ctx, (Map<String, Object>) msg.data);
                     break;
@@ -65,7 +73,16 @@ public class GameHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
 
         Integer playerId = (Integer) data.get("playerId");
         Number timestamp = (Number) data.get("timestamp");
-        logger.info("收到心跳消息: playerId={}, timestamp={}", playerId, timestamp);
+        logger.debug("收到心跳消息: playerId={}, timestamp={}", playerId, timestamp);
+
+        // 心跳可以带上客户端已收到的世界版本号，重连时从这个版本开始发送增量
+        Number version = (Number) data.get("version");
+        if (version != null) {
+            SessionManager.Session session = sessions.get(ctx.channel());
+            if (session != null && !session.acknowledge(version.longValue())) {
+                logger.debug("忽略无效的版本确认: playerId={}, version={}", session.getPlayerId(), version);
+            }
+        }
 
         // 回复心跳确认消息
         try {
@@ -85,30 +102,96 @@ public class GameHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
             playerName = "玩家" + System.currentTimeMillis() % 1000;
         }
 
+        // 同一连接重复登录时先结束旧会话
+        endSession(ctx);
+
         // 创建新玩家
         Player player = world.createPlayer(playerName);
-        String sessionId = ctx.channel().id().asShortText();
-        playerSessions.put(sessionId, player.getId());
+        SessionManager.Session session = sessions.create(player.getId(), ctx.channel());
 
-        logger.info("玩家连接: {} (ID: {}), 会话: {}", playerName, player.getId(), sessionId);
+        logger.info("玩家连接: {} (ID: {}), 会话: {}", playerName, player.getId(), ctx.channel().id().asShortText());
 
         // 发送连接响应
         try {
             Protocol.Message response = Protocol.createConnectResponse(
-                    player.getId(), player.getX(), player.getY());
+                    player.getId(), player.getX(), player.getY(), session.getResumeToken());
             ctx.writeAndFlush(new TextWebSocketFrame(Protocol.serialize(response)));
 
             // 广播玩家加入
             broadcastPlayerJoin(player);
 
             // 发送当前世界状态
-            sendWorldState(ctx, player.getId());
+            sendWorldState(ctx, session);
+
+        } catch (JsonProcessingException e) {
+            logger.error("序列化响应失败", e);
+        }
+    }
+
+    private void handleResumeRequest(ChannelHandlerContext ctx, Map<String, Object> data) {
+        String resumeToken = (String) data.get("resumeToken");
+        Number lastVersion = (Number) data.get("lastVersion");
+
+        // 先确认令牌有效，失败时不影响当前连接上已有的玩家
+        SessionManager.Session current = sessions.get(ctx.channel());
+        SessionManager.Session session = resumeToken == null ? null : sessions.find(resumeToken);
+        Player player = session == null ? null : world.getPlayer(session.getPlayerId());
+        if (player == null || sessions.resume(resumeToken, ctx.channel()) != session) {
+            logger.info("会话恢复失败, 需要重新登录: {}", ctx.channel().id().asShortText());
+            sendError(ctx, "会话已过期");
+            return;
+        }
+
+        // 当前连接上原来是其他玩家时结束它
+        if (current != null && current != session) {
+            sessions.end(current);
+            removePlayer(current.getPlayerId());
+        }
+
+        logger.info("玩家重连: {} (ID: {}), 会话: {}", player.getName(), player.getId(), ctx.channel().id().asShortText());
 
+        try {
+            Protocol.Message response = Protocol.createResumeResponse(
+                    player.getId(), player.getX(), player.getY(), session.getResumeToken());
+            ctx.writeAndFlush(new TextWebSocketFrame(Protocol.serialize(response)));
+
+            // 只从客户端确认过的版本计算增量，没有确认或版本太旧时发送完整世界状态
+            if (lastVersion != null) {
+                session.acknowledge(lastVersion.longValue());
+            }
+            long since = session.getAckedVersion();
+            Protocol.WorldDelta delta = since == SessionManager.NO_VERSION ? null : world.getChangesSince(since);
+            if (delta == null) {
+                sendWorldState(ctx, session);
+            } else {
+                ctx.writeAndFlush(new TextWebSocketFrame(Protocol.serialize(Protocol.createWorldDelta(delta))));
+                session.setSentVersion(delta.version);
+            }
         } catch (JsonProcessingException e) {
             logger.error("序列化响应失败", e);
         }
     }
 
+    // 客户端主动退出，不保留会话
+    private void handlePlayerLeave(ChannelHandlerContext ctx) {
+        endSession(ctx);
+    }
+
+    private void endSession(ChannelHandlerContext ctx) {
+        SessionManager.Session session = sessions.remove(ctx.channel());
+        if (session != null) {
+            removePlayer(session.getPlayerId());
+        }
+    }
+
+    private void removePlayer(int playerId) {
+        Player player = world.removePlayer(playerId);
+        if (player != null) {
+            logger.info("玩家离开: {} (ID: {})", player.getName(), playerId);
+            broadcastPlayerLeave(playerId);
+        }
+    }
+
     private void handlePlayerMove(ChannelHandlerContext ctx, Map<String, Object> data) {
         Integer playerId = (Integer) data.get("playerId");
         Number x = (Number) data.get("x");
@@ -129,6 +212,8 @@ public class GameHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
 
             logger.debug("玩家移动: ID={}, 位置=({}, {})", playerId, x, y);
 
+            world.markChanged(player);
+
             // 广播移动信息给其他玩家
             broadcastPlayerMove(player);
         }
@@ -158,10 +243,13 @@ public class GameHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
                 player.getName(), player.getX(), player.getY());
     }
 
-    private void sendWorldState(ChannelHandlerContext ctx, int excludePlayerId) {
+    private void sendWorldState(ChannelHandlerContext ctx, SessionManager.Session session) {
         try {
-            Protocol.Message worldState = Protocol.createWorldState(world.getAllPlayersData());
+            // 先取版本号，客户端确认这个版本后，重连时只发送之后的增量
+            long version = world.getVersion();
+            Protocol.Message worldState = Protocol.createWorldState(world.getAllPlayersData(), version);
             ctx.writeAndFlush(new TextWebSocketFrame(Protocol.serialize(worldState)));
+            session.setSentVersion(version);
         } catch (JsonProcessingException e) {
             logger.error("发送世界状态失败", e);
         }
@@ -180,15 +268,12 @@ public class GameHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
 
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-        String sessionId = ctx.channel().id().asShortText();
-        Integer playerId = playerSessions.remove(sessionId);
-
-        if (playerId != null) {
-            Player player = world.removePlayer(playerId);
-            if (player != null) {
-                logger.info("玩家断开连接: {} (ID: {})", player.getName(), playerId);
-                broadcastPlayerLeave(playerId);
-            }
+        // 断线后保留玩家，等待客户端用令牌重连，超时后才移除；未开启时立即移除
+        SessionManager.Session session = sessions.park(ctx.channel(),
+                expired -> removePlayer(expired.getPlayerId()));
+        long graceSeconds = sessions.getResumeGraceSeconds();
+        if (session != null && graceSeconds > 0) {
+            logger.info("玩家断开连接, 等待重连: ID={}, {} 秒后移除", session.getPlayerId(), graceSeconds);
         }
 
         super.channelInactive(ctx);
@@ -1,10 +1,7 @@
 package oily.top.network;
 
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFuture;
-import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
@@ -17,7 +14,6 @@ import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.stream.ChunkedWriteHandler;
-import java.nio.charset.StandardCharsets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,60 +21,56 @@ public class GameServer {
 
     private static final Logger logger = LoggerFactory.getLogger(GameServer.class);
 
+    // 握手等HTTP请求的最大长度
+    private static final int MAX_HTTP_CONTENT_LENGTH = 8192;
+    // 游戏消息都很小，超过这个长度的WebSocket帧直接断开
+    private static final int MAX_GAME_FRAME_SIZE = 4096;
+
     private final int port;
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
+    private ServerBootstrap bootstrap;
+    private final ReadinessHandler readinessHandler = new ReadinessHandler(this);
+    // 绑定端口后预热完成才就绪，未就绪时 /ready 和 /ws 都返回 503，关闭时先取消就绪
+    private volatile boolean ready;
 
     public GameServer(int port) {
         this.port = port;
     }
 
-    public void start() throws InterruptedException {
+    // 初始化网络(线程组和管道配置)，不绑定端口，可以和数据库初始化并行执行
+    public void init() {
         bossGroup = new NioEventLoopGroup(1);
         workerGroup = new NioEventLoopGroup();
 
-        try {
-            ServerBootstrap b = new ServerBootstrap();
-            b.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .handler(new LoggingHandler(LogLevel.INFO))
-                    .childHandler(new ChannelInitializer<SocketChannel>() {
-                        @Override
-                        protected void initChannel(SocketChannel ch) throws Exception {
-                            ch.pipeline().addLast(
-                                    /**
-                                     * 在 WebSocket 解码前打印原始字节, 调试用，可删除
-                                     */
-                                    new ChannelInboundHandlerAdapter() {
-                                @Override
-                                public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-                                    if (msg instanceof ByteBuf) {
-                                        ByteBuf buf = (ByteBuf) msg;
-                                        int len = buf.readableBytes();
-                                        byte[] bytes = new byte[len];
-                                        buf.getBytes(buf.readerIndex(), bytes);
-                                        StringBuilder hex = new StringBuilder();
-                                        for (byte b : bytes) {
-                                            hex.append(String.format("%02X ", b));
-                                        }
-                                        logger.info("原始 TCP 字节 ({} bytes): {}", len, hex.toString().trim());
-                                    } else {
-                                        logger.warn("非 ByteBuf 消息: {}", msg.getClass().getName());
-                                    }
-                                    super.channelRead(ctx, msg);
-                                }
-                            },
-                                    new HttpServerCodec(),
-                                    new ChunkedWriteHandler(),
-                                    new HttpObjectAggregator(65536),
-                                    new WebSocketServerProtocolHandler("/ws"),
-                                    new GameHandler());
-                        }
-                    })
-                    .option(ChannelOption.SO_BACKLOG, 128)
-                    .childOption(ChannelOption.SO_KEEPALIVE, true);
+        bootstrap = new ServerBootstrap();
+        bootstrap.group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .handler(new LoggingHandler(LogLevel.INFO))
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) throws Exception {
+                        ch.pipeline().addLast(
+                                new HttpServerCodec(),
+                                new ChunkedWriteHandler(),
+                                new HttpObjectAggregator(MAX_HTTP_CONTENT_LENGTH),
+                                readinessHandler,
+                                new WebSocketServerProtocolHandler("/ws", null, false, MAX_GAME_FRAME_SIZE),
+                                new RateLimitHandler(),
+                                new GameHandler());
+                    }
+                })
+                .option(ChannelOption.SO_BACKLOG, 128)
+                .childOption(ChannelOption.SO_KEEPALIVE, true);
+    }
+
+    public void start() throws InterruptedException {
+        if (bootstrap == null) {
+            init();
+        }
 
-            ChannelFuture f = b.bind(port).sync();
+        try {
+            ChannelFuture f = bootstrap.bind(port).sync();
             logger.info("==WebSocket服务器已启动在端口: {}", port);
             f.channel().closeFuture().sync(); // 堵塞直到服务器关闭
 
@@ -87,7 +79,18 @@ public class GameServer {
         }
     }
 
+    public boolean isReady() {
+        return ready;
+    }
+
+    // 预热完成后调用，开始接受玩家连接
+    public void markReady() {
+        ready = true;
+        logger.info("服务器已就绪");
+    }
+
     public void stop() {
+        ready = false;
         if (workerGroup != null) {
             workerGroup.shutdownGracefully();
         }
@@ -3,8 +3,13 @@ package oily.top.network;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Protocol {
     
@@ -16,12 +21,19 @@ public class Protocol {
     public static final int MSG_PLAYER_LEAVE = 5;
     public static final int MSG_WORLD_STATE = 6;
     public static final int MSG_CHAT_MESSAGE = 7;
+    public static final int MSG_RESUME_REQUEST = 8;
+    public static final int MSG_RESUME_RESPONSE = 9;
+    public static final int MSG_WORLD_DELTA = 10;
     public static final int MSG_HEARTBEAT=99;
     
     private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectWriter writer;
+    private static final ObjectReader messageReader;
     
     static {
         mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        writer = mapper.writer();
+        messageReader = mapper.readerFor(Message.class);
     }
     
     public static class Message {
@@ -52,6 +64,8 @@ public class Protocol {
         public int playerId;
         public float x;
         public float y;
+        // 断线重连时用于恢复会话
+        public String resumeToken;
         
         public ConnectResponse() {}
         
@@ -60,6 +74,24 @@ public class Protocol {
             this.x = x;
             this.y = y;
         }
+        
+        public ConnectResponse(int playerId, float x, float y, String resumeToken) {
+            this(playerId, x, y);
+            this.resumeToken = resumeToken;
+        }
+    }
+    
+    // 断线重连请求，lastVersion 为客户端最后收到的世界版本号
+    public static class ResumeRequest {
+        public String resumeToken;
+        public Long lastVersion;
+        
+        public ResumeRequest() {}
+        
+        public ResumeRequest(String resumeToken, Long lastVersion) {
+            this.resumeToken = resumeToken;
+            this.lastVersion = lastVersion;
+        }
     }
     
     // 玩家移动
@@ -101,22 +133,63 @@ public class Protocol {
     // 世界状态
     public static class WorldState {
         public List<PlayerData> players;
+        public long version;
         
         public WorldState() {}
         
         public WorldState(List<PlayerData> players) {
             this.players = players;
         }
+        
+        public WorldState(List<PlayerData> players, long version) {
+            this.players = players;
+            this.version = version;
+        }
+    }
+    
+    // 世界增量，某个版本之后变化的玩家和离开的玩家
+    public static class WorldDelta {
+        public long version;
+        public List<PlayerData> players;
+        public List<Integer> removed;
+        
+        public WorldDelta() {}
+        
+        public WorldDelta(long version, List<PlayerData> players, List<Integer> removed) {
+            this.version = version;
+            this.players = players;
+            this.removed = removed;
+        }
     }
     
     // 序列化
     public static String serialize(Message msg) throws JsonProcessingException {
-        return mapper.writeValueAsString(msg);
+        return writer.writeValueAsString(msg);
     }
     
     // 反序列化
     public static Message deserialize(String json) throws JsonProcessingException {
-        return mapper.readValue(json, Message.class);
+        return messageReader.readValue(json);
+    }
+    
+    // 预热，提前构建所有消息类的序列化器，避免第一批玩家承担构建开销
+    public static void warmUp() throws JsonProcessingException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("playerId", 1);
+        data.put("timestamp", 0L);
+        Message[] samples = {
+            new Message(MSG_CONNECT_REQUEST, new ConnectRequest("warmup")),
+            createConnectResponse(1, 0f, 0f),
+            createPlayerMove(1, 0f, 0f, 0f),
+            createConnectResponse(1, 0f, 0f, "warmup"),
+            createWorldState(Arrays.asList(new PlayerData(1, "warmup", 0f, 0f, 0f)), 1L),
+            createWorldDelta(new WorldDelta(1L, Arrays.asList(new PlayerData(1, "warmup", 0f, 0f, 0f)),
+                    Arrays.asList(2))),
+            new Message(MSG_HEARTBEAT, data)
+        };
+        for (Message sample : samples) {
+            deserialize(serialize(sample));
+        }
     }
     
     // 创建消息
@@ -124,6 +197,14 @@ public class Protocol {
         return new Message(MSG_CONNECT_RESPONSE, new ConnectResponse(playerId, x, y));
     }
     
+    public static Message createConnectResponse(int playerId, float x, float y, String resumeToken) {
+        return new Message(MSG_CONNECT_RESPONSE, new ConnectResponse(playerId, x, y, resumeToken));
+    }
+    
+    public static Message createResumeResponse(int playerId, float x, float y, String resumeToken) {
+        return new Message(MSG_RESUME_RESPONSE, new ConnectResponse(playerId, x, y, resumeToken));
+    }
+    
     public static Message createPlayerMove(int playerId, float x, float y, float direction) {
         return new Message(MSG_PLAYER_MOVE, new PlayerMove(playerId, x, y, direction));
     }
@@ -131,4 +212,12 @@ public class Protocol {
     public static Message createWorldState(List<PlayerData> players) {
         return new Message(MSG_WORLD_STATE, new WorldState(players));
     }
+    
+    public static Message createWorldState(List<PlayerData> players, long version) {
+        return new Message(MSG_WORLD_STATE, new WorldState(players, version));
+    }
+    
+    public static Message createWorldDelta(WorldDelta delta) {
+        return new Message(MSG_WORLD_DELTA, delta);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,297 @@
+package oily.top.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.ReferenceCountUtil;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 每个连接的入站限流，放在 GameHandler 前面
+ * 
+ * 只扫描字节找出顶层 "type" 字段判断消息类别，不做完整的JSON解析；
+ * 每个类别一个令牌桶，没有令牌的帧直接丢弃。持续超限的连接会被断开
+ */
+public class RateLimitHandler extends ChannelInboundHandlerAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitHandler.class);
+
+    // 顶层键名 type，不含引号
+    private static final byte[] TYPE_KEY = "type".getBytes(StandardCharsets.US_ASCII);
+
+    // 统计窗口内丢弃超过这么多帧就断开连接
+    private static final long VIOLATION_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int MAX_DROPS_PER_WINDOW = 50;
+
+    // 消息类别: 令牌桶容量, 每秒补充的令牌数
+    public enum MessageClass {
+        CONNECT(3, 0.1),
+        MOVE(60, 60),
+        CHAT(5, 1),
+        HEARTBEAT(5, 1),
+        OTHER(10, 5);
+
+        final double capacity;
+        final double refillPerNano;
+
+        MessageClass(double capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerNano = refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+        }
+
+        static MessageClass of(int type) {
+            switch (type) {
+                case Protocol.MSG_CONNECT_REQUEST:
+                case Protocol.MSG_RESUME_REQUEST:
+                    return CONNECT;
+                case Protocol.MSG_PLAYER_MOVE:
+                    return MOVE;
+                case Protocol.MSG_CHAT_MESSAGE:
+                    return CHAT;
+                case Protocol.MSG_HEARTBEAT:
+                    return HEARTBEAT;
+                default:
+                    return OTHER;
+            }
+        }
+    }
+
+    private static final MessageClass[] CLASSES = MessageClass.values();
+    // 找不到类型的帧(非文本帧、没有顶层 type、type 不是整数或重复)使用最严格的桶
+    private static final MessageClass UNCLASSIFIED = MessageClass.CONNECT;
+
+    // 全局统计
+    private static final AtomicLongArray droppedFrames = new AtomicLongArray(CLASSES.length);
+    private static final AtomicLong disconnects = new AtomicLong();
+
+    private final double[] tokens = new double[CLASSES.length];
+    private final long[] lastRefill = new long[CLASSES.length];
+    private long windowStart;
+    private int windowDrops;
+    private boolean closing;
+
+    public RateLimitHandler() {
+        long now = System.nanoTime();
+        for (MessageClass messageClass : CLASSES) {
+            tokens[messageClass.ordinal()] = messageClass.capacity;
+            lastRefill[messageClass.ordinal()] = now;
+        }
+        windowStart = now;
+    }
+
+    public static long getDroppedFrames(MessageClass messageClass) {
+        return droppedFrames.get(messageClass.ordinal());
+    }
+
+    public static long getDisconnects() {
+        return disconnects.get();
+    }
+
+    // 统计文本，每行一项: 名称 数值
+    public static String formatStats() {
+        StringBuilder stats = new StringBuilder();
+        for (MessageClass messageClass : CLASSES) {
+            stats.append("ratelimit_dropped_frames{class=\"")
+                    .append(messageClass.name().toLowerCase(Locale.ROOT))
+                    .append("\"} ")
+                    .append(getDroppedFrames(messageClass))
+                    .append('\n');
+        }
+        stats.append("ratelimit_disconnects ").append(getDisconnects()).append('\n');
+        return stats.toString();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof WebSocketFrame)) {
+            super.channelRead(ctx, msg);
+            return;
+        }
+        if (closing) {
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+
+        WebSocketFrame frame = (WebSocketFrame) msg;
+        int type = frame instanceof TextWebSocketFrame ? peekType(frame.content()) : -1;
+        MessageClass messageClass = type < 0 ? UNCLASSIFIED : MessageClass.of(type);
+
+        long now = System.nanoTime();
+        if (tryAcquire(messageClass, now)) {
+            super.channelRead(ctx, msg);
+            return;
+        }
+
+        ReferenceCountUtil.release(msg);
+        droppedFrames.incrementAndGet(messageClass.ordinal());
+        recordDrop(ctx, messageClass, now);
+    }
+
+    private boolean tryAcquire(MessageClass messageClass, long now) {
+        int i = messageClass.ordinal();
+        double available = tokens[i] + (now - lastRefill[i]) * messageClass.refillPerNano;
+        lastRefill[i] = now;
+        if (available > messageClass.capacity) {
+            available = messageClass.capacity;
+        }
+        if (available < 1) {
+            tokens[i] = available;
+            return false;
+        }
+        tokens[i] = available - 1;
+        return true;
+    }
+
+    private void recordDrop(ChannelHandlerContext ctx, MessageClass messageClass, long now) {
+        if (now - windowStart > VIOLATION_WINDOW_NANOS) {
+            windowStart = now;
+            windowDrops = 0;
+        }
+        windowDrops++;
+        if (windowDrops == 1) {
+            logger.debug("连接超出限流, 丢弃消息: {} ({})", ctx.channel().id().asShortText(), messageClass);
+        }
+        if (windowDrops > MAX_DROPS_PER_WINDOW) {
+            closing = true;
+            disconnects.incrementAndGet();
+            logger.warn("连接持续超出限流, 断开: {}", ctx.channel().id().asShortText());
+            ctx.writeAndFlush(new CloseWebSocketFrame(1008, "rate limit exceeded"))
+                    .addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    /**
+     * 扫描整个帧查找顶层 "type":整数，不解码整个消息
+     * 
+     * 跳过字符串内容和嵌套对象中的 type；顶层 type 出现多次或顶层键名含转义时
+     * 视为找不到，防止限流和 Jackson 取到不同的值
+     * 
+     * @return 消息类型，找不到时返回 -1
+     */
+    static int peekType(ByteBuf buf) {
+        int end = buf.writerIndex();
+        int depth = 0;
+        boolean expectKey = false;
+        int type = -1;
+
+        for (int i = buf.readerIndex(); i < end; i++) {
+            byte b = buf.getByte(i);
+            switch (b) {
+                case '{':
+                case '[':
+                    depth++;
+                    expectKey = b == '{' && depth == 1;
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    break;
+                case ',':
+                    expectKey = depth == 1;
+                    break;
+                case '"':
+                    int close = skipString(buf, i + 1, end);
+                    if (close < 0) {
+                        return -1;
+                    }
+                    // Jackson 会先还原转义再匹配键名，顶层键含转义时无法可靠判断
+                    if (expectKey && buf.indexOf(i + 1, close, (byte) '\\') >= 0) {
+                        return -1;
+                    }
+                    if (expectKey && isTypeKey(buf, i + 1, close)) {
+                        if (type >= 0) {
+                            return -1;
+                        }
+                        type = parseValue(buf, close + 1, end);
+                        if (type < 0) {
+                            return -1;
+                        }
+                    }
+                    expectKey = false;
+                    i = close;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return type;
+    }
+
+    // 返回字符串结束引号的位置，字符串未结束时返回 -1
+    private static int skipString(ByteBuf buf, int i, int end) {
+        while (i < end) {
+            byte b = buf.getByte(i);
+            if (b == '\\') {
+                i += 2;
+                continue;
+            }
+            if (b == '"') {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static boolean isTypeKey(ByteBuf buf, int start, int close) {
+        if (close - start != TYPE_KEY.length) {
+            return false;
+        }
+        for (int j = 0; j < TYPE_KEY.length; j++) {
+            if (buf.getByte(start + j) != TYPE_KEY[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 解析键后面的 :整数，值不是整数时返回 -1
+    private static int parseValue(ByteBuf buf, int i, int end) {
+        i = skipWhitespace(buf, i, end);
+        if (i >= end || buf.getByte(i) != ':') {
+            return -1;
+        }
+        i = skipWhitespace(buf, i + 1, end);
+
+        int value = 0;
+        int digits = 0;
+        while (i < end && digits < 9) {
+            byte b = buf.getByte(i);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            value = value * 10 + (b - '0');
+            digits++;
+            i++;
+        }
+        if (digits == 0) {
+            return -1;
+        }
+        i = skipWhitespace(buf, i, end);
+        if (i >= end || (buf.getByte(i) != ',' && buf.getByte(i) != '}')) {
+            return -1;
+        }
+        return value;
+    }
+
+    private static int skipWhitespace(ByteBuf buf, int i, int end) {
+        while (i < end) {
+            byte b = buf.getByte(i);
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,71 @@
+package oily.top.network;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * 就绪检查，GET /ready 返回 200 READY 或 503 NOT_READY，供负载均衡滚动发布时使用
+ * 
+ * 服务器未就绪(启动预热中或正在关闭)时，其他HTTP请求(包括WebSocket握手)也返回 503
+ * 
+ * GET /stats 返回限流统计(纯文本)，不受就绪状态影响
+ */
+@ChannelHandler.Sharable
+public class ReadinessHandler extends ChannelInboundHandlerAdapter {
+
+    public static final String READY_PATH = "/ready";
+    public static final String STATS_PATH = "/stats";
+
+    private final GameServer server;
+
+    public ReadinessHandler(GameServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof FullHttpRequest)) {
+            super.channelRead(ctx, msg);
+            return;
+        }
+
+        FullHttpRequest request = (FullHttpRequest) msg;
+        boolean ready = server.isReady();
+        String path = new QueryStringDecoder(request.uri()).path();
+        if (STATS_PATH.equals(path)) {
+            ReferenceCountUtil.release(request);
+            sendStatus(ctx, HttpResponseStatus.OK, RateLimitHandler.formatStats());
+        } else if (READY_PATH.equals(path)) {
+            ReferenceCountUtil.release(request);
+            sendStatus(ctx, ready ? HttpResponseStatus.OK : HttpResponseStatus.SERVICE_UNAVAILABLE,
+                    ready ? "READY" : "NOT_READY");
+        } else if (!ready) {
+            ReferenceCountUtil.release(request);
+            sendStatus(ctx, HttpResponseStatus.SERVICE_UNAVAILABLE, "NOT_READY");
+        } else {
+            super.channelRead(ctx, msg);
+        }
+    }
+
+    private void sendStatus(ChannelHandlerContext ctx, HttpResponseStatus status, String body) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status,
+                Unpooled.copiedBuffer(body, CharsetUtil.UTF_8));
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain; charset=UTF-8");
+        response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+        response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+}
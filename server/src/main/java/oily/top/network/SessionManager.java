@@ -0,0 +1,205 @@
+package oily.top.network;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelId;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 玩家会话，连接时发放恢复令牌
+ * 
+ * 连接断开后玩家保留 oilytop.resumeGraceSeconds 秒，期间客户端可以用令牌重新接入同一个玩家，
+ * 超时后才从世界中移除。默认为0(断线立即移除)，客户端支持重连和主动退出后再打开
+ */
+public class SessionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionManager.class);
+    private static final SessionManager instance = new SessionManager();
+
+    public static final String RESUME_GRACE_PROPERTY = "oilytop.resumeGraceSeconds";
+    public static final long NO_VERSION = -1;
+
+    private final Map<String, Session> sessionsByToken = new ConcurrentHashMap<>();
+    private final Map<ChannelId, Session> sessionsByChannel = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "session-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 断线后保留玩家的秒数，0 表示不保留
+    private volatile long resumeGraceSeconds = Long.getLong(RESUME_GRACE_PROPERTY, 0);
+
+    private SessionManager() {}
+
+    public static SessionManager getInstance() {
+        return instance;
+    }
+
+    public static class Session {
+        private final int playerId;
+        private final String resumeToken;
+        // 当前连接，断开等待重连时为 null
+        private Channel channel;
+        private ScheduledFuture<?> expiry;
+        // 最后发送给客户端的世界版本号
+        private volatile long sentVersion = NO_VERSION;
+        // 客户端通过心跳确认收到的世界版本号，只由客户端确认推进
+        private volatile long ackedVersion = NO_VERSION;
+
+        Session(int playerId, String resumeToken, Channel channel) {
+            this.playerId = playerId;
+            this.resumeToken = resumeToken;
+            this.channel = channel;
+        }
+
+        public int getPlayerId() { return playerId; }
+
+        public String getResumeToken() { return resumeToken; }
+
+        public long getSentVersion() { return sentVersion; }
+        public void setSentVersion(long sentVersion) { this.sentVersion = sentVersion; }
+
+        public long getAckedVersion() { return ackedVersion; }
+
+        // 客户端确认的版本不能超过已发送的版本
+        public boolean acknowledge(long version) {
+            if (version < 0 || version > sentVersion) {
+                return false;
+            }
+            if (version > ackedVersion) {
+                ackedVersion = version;
+            }
+            return true;
+        }
+    }
+
+    public long getResumeGraceSeconds() {
+        return resumeGraceSeconds;
+    }
+
+    public void setResumeGraceSeconds(long resumeGraceSeconds) {
+        this.resumeGraceSeconds = resumeGraceSeconds;
+    }
+
+    public Session create(int playerId, Channel channel) {
+        Session session = new Session(playerId, newToken(), channel);
+        sessionsByToken.put(session.resumeToken, session);
+        sessionsByChannel.put(channel.id(), session);
+        return session;
+    }
+
+    public Session get(Channel channel) {
+        return sessionsByChannel.get(channel.id());
+    }
+
+    public Session find(String resumeToken) {
+        return sessionsByToken.get(resumeToken);
+    }
+
+    /**
+     * 用令牌把会话接到新连接上
+     * 
+     * 如果旧连接还没有被检测到断开，旧连接会被关闭
+     * 
+     * @return 令牌无效或已过期时返回 null
+     */
+    public synchronized Session resume(String resumeToken, Channel channel) {
+        Session session = sessionsByToken.get(resumeToken);
+        if (session == null) {
+            return null;
+        }
+
+        if (session.expiry != null) {
+            session.expiry.cancel(false);
+            session.expiry = null;
+        }
+        Channel previous = session.channel;
+        if (previous != null && previous != channel) {
+            sessionsByChannel.remove(previous.id(), session);
+            previous.close();
+        }
+        session.channel = channel;
+        sessionsByChannel.put(channel.id(), session);
+        return session;
+    }
+
+    /**
+     * 连接断开，保留会话等待重连，超时后执行 onExpire；不保留时立即执行
+     * 
+     * @return 这个连接上没有会话(或会话已被其他连接接管)时返回 null
+     */
+    public synchronized Session park(Channel channel, Consumer<Session> onExpire) {
+        Session session = sessionsByChannel.remove(channel.id());
+        if (session == null || session.channel != channel) {
+            return null;
+        }
+
+        session.channel = null;
+        if (resumeGraceSeconds <= 0) {
+            // 不保留会话，立即结束
+            sessionsByToken.remove(session.resumeToken, session);
+            onExpire.accept(session);
+            return session;
+        }
+        session.expiry = scheduler.schedule(() -> expire(session, onExpire),
+                resumeGraceSeconds, TimeUnit.SECONDS);
+        return session;
+    }
+
+    // 主动退出，立即结束会话
+    public Session remove(Channel channel) {
+        Session session = sessionsByChannel.get(channel.id());
+        if (session == null) {
+            return null;
+        }
+        end(session);
+        return session;
+    }
+
+    // 结束指定会话，令牌随之失效
+    public synchronized void end(Session session) {
+        if (session.expiry != null) {
+            session.expiry.cancel(false);
+            session.expiry = null;
+        }
+        if (session.channel != null) {
+            sessionsByChannel.remove(session.channel.id(), session);
+            session.channel = null;
+        }
+        sessionsByToken.remove(session.resumeToken, session);
+    }
+
+    private void expire(Session session, Consumer<Session> onExpire) {
+        synchronized (this) {
+            if (session.channel != null || !sessionsByToken.remove(session.resumeToken, session)) {
+                return;
+            }
+        }
+        try {
+            onExpire.accept(session);
+        } catch (Exception e) {
+            logger.error("会话过期处理失败: playerId={}", session.playerId, e);
+        }
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        StringBuilder token = new StringBuilder(32);
+        for (byte b : bytes) {
+            token.append(Character.forDigit((b >> 4) & 0xF, 16));
+            token.append(Character.forDigit(b & 0xF, 16));
+        }
+        return token.toString();
+    }
+}
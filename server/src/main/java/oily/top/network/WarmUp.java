@@ -0,0 +1,70 @@
+package oily.top.network;
+
+import io.netty.channel.DefaultChannelId;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * 启动预热，在绑定端口前用模拟消息走一遍 GameHandler，让JIT提前编译热点代码
+ */
+public class WarmUp {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmUp.class);
+
+    public static final String ITERATIONS_PROPERTY = "oilytop.warmupIterations";
+
+    private WarmUp() {}
+
+    public static void run() throws Exception {
+        int iterations = Integer.getInteger(ITERATIONS_PROPERTY, 10000);
+        long start = System.currentTimeMillis();
+
+        Protocol.warmUp();
+
+        EmbeddedChannel channel = new EmbeddedChannel(DefaultChannelId.newInstance(), new GameHandler());
+        try {
+            channel.writeInbound(new TextWebSocketFrame(
+                    "{\"type\":" + Protocol.MSG_CONNECT_REQUEST + ",\"data\":{\"playerName\":\"warmup\"}}"));
+            int playerId = readPlayerId(channel);
+            channel.releaseOutbound();
+
+            for (int i = 0; i < iterations; i++) {
+                channel.writeInbound(new TextWebSocketFrame(
+                        "{\"type\":" + Protocol.MSG_PLAYER_MOVE + ",\"data\":{\"playerId\":" + playerId
+                        + ",\"x\":" + (i % 800) + ".5,\"y\":" + (i % 600) + ".5,\"direction\":" + (i % 360) + "}}"));
+                channel.writeInbound(new TextWebSocketFrame(
+                        "{\"type\":" + Protocol.MSG_HEARTBEAT + ",\"data\":{\"playerId\":" + playerId
+                        + ",\"timestamp\":" + i + "}}"));
+                channel.releaseOutbound();
+            }
+            // 主动退出，把预热玩家从世界中移除
+            channel.writeInbound(leaveFrame());
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+
+        logger.info("GameHandler 预热完成: {} 轮, 耗时 {} ms", iterations, System.currentTimeMillis() - start);
+    }
+
+    private static TextWebSocketFrame leaveFrame() {
+        return new TextWebSocketFrame("{\"type\":" + Protocol.MSG_PLAYER_LEAVE + ",\"data\":{}}");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int readPlayerId(EmbeddedChannel channel) throws Exception {
+        TextWebSocketFrame frame = channel.readOutbound();
+        if (frame == null) {
+            throw new IllegalStateException("预热连接没有收到响应");
+        }
+        try {
+            Protocol.Message response = Protocol.deserialize(frame.text());
+            return ((Number) ((Map<String, Object>) response.data).get("playerId")).intValue();
+        } finally {
+            frame.release();
+        }
+    }
+}
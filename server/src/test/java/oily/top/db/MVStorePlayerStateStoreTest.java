@@ -0,0 +1,57 @@
+package oily.top.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import oily.top.game.Player;
+import org.h2.mvstore.MVStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class MVStorePlayerStateStoreTest {
+
+    // 不指定文件名时为内存存储
+    private final MVStore store = MVStore.open(null);
+
+    @AfterEach
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void recordRoundTrip() {
+        Player player = new Player("round");
+        player.setX(412.345f);
+        player.setY(-298.765f);
+        player.setDirection(1.5708f);
+        player.setExperience(Long.MAX_VALUE - 7);
+
+        Player loaded = new Player("round");
+        MVStorePlayerStateStore.decode(MVStorePlayerStateStore.encode(player), loaded);
+
+        assertEquals(player.getX(), loaded.getX());
+        assertEquals(player.getY(), loaded.getY());
+        assertEquals(player.getDirection(), loaded.getDirection());
+        assertEquals(player.getExperience(), loaded.getExperience());
+    }
+
+    @Test
+    public void keyedByNameNotSessionId() {
+        MVStorePlayerStateStore states = new MVStorePlayerStateStore(store);
+
+        Player before = new Player("alice");
+        before.setX(10f);
+        before.setExperience(42);
+        states.save(before);
+
+        // 重启后同名玩家的进程内ID不同，仍然读到自己的数据
+        Player after = new Player("alice");
+        assertTrue(after.getId() != before.getId());
+        assertTrue(states.load(after));
+        assertEquals(10f, after.getX());
+        assertEquals(42, after.getExperience());
+
+        assertFalse(states.load(new Player("bob")));
+    }
+}
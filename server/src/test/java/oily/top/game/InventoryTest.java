@@ -0,0 +1,126 @@
+package oily.top.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class InventoryTest {
+
+    @Test
+    public void addItemStacksBeforeUsingEmptySlots() {
+        Inventory inventory = new Inventory(4);
+        inventory.loadSlot(2, 100, 15, null);
+
+        int leftover = inventory.addItem(100, 30, 20, null);
+
+        assertEquals(0, leftover);
+        assertEquals(20, inventory.getCount(2));
+        assertEquals(100, inventory.getItemId(0));
+        assertEquals(20, inventory.getCount(0));
+        assertEquals(100, inventory.getItemId(1));
+        assertEquals(5, inventory.getCount(1));
+        assertTrue(inventory.isEmpty(3));
+    }
+
+    @Test
+    public void addItemReturnsWhatDoesNotFit() {
+        Inventory inventory = new Inventory(2);
+        assertEquals(10, inventory.addItem(100, 50, 20, null));
+
+        // 带属性的物品不叠加
+        Inventory withAttributes = new Inventory(2);
+        withAttributes.addItem(200, 1, 5, "{\"level\":1}");
+        assertEquals(0, withAttributes.addItem(200, 2, 5, "{\"level\":1}"));
+        assertEquals(1, withAttributes.getCount(0));
+        assertEquals(2, withAttributes.getCount(1));
+    }
+
+    @Test
+    public void addItemRejectsInvalidArguments() {
+        Inventory inventory = new Inventory(2);
+        assertThrows(IllegalArgumentException.class, () -> inventory.addItem(Inventory.EMPTY, 1, 20, null));
+        assertThrows(IllegalArgumentException.class, () -> inventory.addItem(100, 0, 20, null));
+        assertThrows(IllegalArgumentException.class, () -> inventory.addItem(100, 1, 0, null));
+        assertFalse(inventory.isDirty());
+        assertTrue(inventory.isEmpty(0));
+    }
+
+    @Test
+    public void loadedSlotsAreNotDirty() {
+        Inventory inventory = new Inventory(4);
+        inventory.loadSlot(0, 100, 1, null);
+        inventory.loadSlot(99, 100, 1, null);
+        assertFalse(inventory.isDirty());
+        assertTrue(inventory.drainChanges().isEmpty());
+    }
+
+    @Test
+    public void drainReturnsOnlyChangedSlots() {
+        Inventory inventory = new Inventory(4);
+        inventory.loadSlot(0, 100, 5, null);
+        inventory.loadSlot(1, 101, 1, null);
+
+        inventory.setCount(0, 7);
+        inventory.clearSlot(1);
+        inventory.clearSlot(3); // 已经是空格子，不算修改
+
+        List<Inventory.SlotChange> changes = inventory.drainChanges();
+        assertEquals(2, changes.size());
+        assertEquals(0, changes.get(0).slot);
+        assertEquals(7, changes.get(0).count);
+        assertFalse(changes.get(0).isEmpty());
+        // 清空的格子在保存时删除
+        assertEquals(1, changes.get(1).slot);
+        assertTrue(changes.get(1).isEmpty());
+
+        assertFalse(inventory.isDirty());
+        assertTrue(inventory.drainChanges().isEmpty());
+    }
+
+    @Test
+    public void markDirtyRestoresChangesAfterFailedSave() {
+        Inventory inventory = new Inventory(4);
+        inventory.setSlot(2, 100, 3, null);
+        List<Inventory.SlotChange> failed = inventory.drainChanges();
+
+        // 保存失败期间格子又被修改，恢复后保存的是最新内容
+        inventory.setCount(2, 4);
+        inventory.markDirty(failed);
+
+        List<Inventory.SlotChange> retry = inventory.drainChanges();
+        assertEquals(1, retry.size());
+        assertEquals(2, retry.get(0).slot);
+        assertEquals(4, retry.get(0).count);
+    }
+
+    @Test
+    public void setCountToZeroClearsSlot() {
+        Inventory inventory = new Inventory(2);
+        inventory.loadSlot(0, 100, 5, null);
+        inventory.setCount(0, 0);
+        assertTrue(inventory.isEmpty(0));
+        assertTrue(inventory.drainChanges().get(0).isEmpty());
+    }
+
+    @Test
+    public void attributesParsedLazilyAndCached() {
+        Inventory inventory = new Inventory(2);
+        inventory.loadSlot(0, 100, 1, "{\"level\":3}");
+        inventory.loadSlot(1, 101, 1, "not json");
+
+        Map<String, Object> attributes = inventory.getAttributes(0);
+        assertEquals(3, attributes.get("level"));
+        assertSame(attributes, inventory.getAttributes(0));
+        assertTrue(inventory.getAttributes(1).isEmpty());
+
+        // 替换格子后缓存失效
+        inventory.setSlot(0, 100, 1, "{\"level\":4}");
+        assertEquals(4, inventory.getAttributes(0).get("level"));
+    }
+}
@@ -0,0 +1,166 @@
+package oily.top.network;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import io.netty.channel.DefaultChannelId;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 每条消息的内存分配预算
+ * 
+ * 每种消息经 EmbeddedChannel 送入 GameHandler，用 ThreadMXBean.getThreadAllocatedBytes
+ * 统计平均每条消息分配的字节数，超过预算即失败。修改预算前先确认新增的分配是必要的
+ * 
+ * 测试日志级别为 warn(见 simplelogger.properties)，预算不包含日志输出的分配
+ */
+public class GameHandlerAllocationTest {
+
+    // 每条消息的分配预算(字节)
+    private static final long CONNECT_BUDGET = 8704;
+    private static final long MOVE_BUDGET = 2048;
+    private static final long HEARTBEAT_BUDGET = 3072;
+    private static final long CHAT_BUDGET = 1408;
+
+    private static final int WARMUP_MESSAGES = 20000;
+    private static final int MEASURED_MESSAGES = 5000;
+    private static final int CONNECT_MESSAGES = 500;
+
+    private static com.sun.management.ThreadMXBean threadBean;
+    private static EmbeddedChannel channel;
+    private static int playerId;
+
+    @BeforeAll
+    @SuppressWarnings("unchecked")
+    public static void setUp() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "JVM 不支持线程内存分配统计");
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported(), "JVM 不支持线程内存分配统计");
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        channel = new EmbeddedChannel(DefaultChannelId.newInstance(), new GameHandler());
+        channel.writeInbound(connectFrame());
+        TextWebSocketFrame response = channel.readOutbound();
+        try {
+            Protocol.Message msg = Protocol.deserialize(response.text());
+            playerId = ((Number) ((Map<String, Object>) msg.data).get("playerId")).intValue();
+        } finally {
+            response.release();
+        }
+        channel.releaseOutbound();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (channel != null) {
+            channel.writeInbound(leaveFrame());
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    public void connectWithinBudget() {
+        measureConnect(CONNECT_MESSAGES);
+        long perMessage = measureConnect(CONNECT_MESSAGES);
+        assertWithinBudget("connect", perMessage, CONNECT_BUDGET);
+    }
+
+    @Test
+    public void moveWithinBudget() {
+        measure(this::moveFrame, WARMUP_MESSAGES);
+        long perMessage = measure(this::moveFrame, MEASURED_MESSAGES);
+        assertWithinBudget("move", perMessage, MOVE_BUDGET);
+    }
+
+    @Test
+    public void heartbeatWithinBudget() {
+        measure(this::heartbeatFrame, WARMUP_MESSAGES);
+        long perMessage = measure(this::heartbeatFrame, MEASURED_MESSAGES);
+        assertWithinBudget("heartbeat", perMessage, HEARTBEAT_BUDGET);
+    }
+
+    @Test
+    public void chatWithinBudget() {
+        measure(this::chatFrame, WARMUP_MESSAGES);
+        long perMessage = measure(this::chatFrame, MEASURED_MESSAGES);
+        assertWithinBudget("chat", perMessage, CHAT_BUDGET);
+    }
+
+    private interface FrameFactory {
+        TextWebSocketFrame create(int i);
+    }
+
+    // 帧在统计前创建好，只统计 GameHandler 处理消息的分配
+    private long measure(FrameFactory factory, int count) {
+        TextWebSocketFrame[] frames = new TextWebSocketFrame[count];
+        for (int i = 0; i < count; i++) {
+            frames[i] = factory.create(i);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (TextWebSocketFrame frame : frames) {
+            channel.writeInbound(frame);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        channel.releaseOutbound();
+        return allocated / count;
+    }
+
+    // 每次连接使用新通道，统计后主动退出，保持世界大小不变
+    private long measureConnect(int count) {
+        long threadId = Thread.currentThread().getId();
+        long allocated = 0;
+        for (int i = 0; i < count; i++) {
+            EmbeddedChannel connectChannel = new EmbeddedChannel(DefaultChannelId.newInstance(), new GameHandler());
+            TextWebSocketFrame frame = connectFrame();
+
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            connectChannel.writeInbound(frame);
+            allocated += threadBean.getThreadAllocatedBytes(threadId) - before;
+
+            connectChannel.writeInbound(leaveFrame());
+            connectChannel.finishAndReleaseAll();
+        }
+        return allocated / count;
+    }
+
+    private static void assertWithinBudget(String type, long perMessage, long budget) {
+        System.out.println(String.format("[allocation] %-9s %6d bytes/msg (budget %d)", type, perMessage, budget));
+        assertTrue(perMessage <= budget, String.format(
+                "%s 消息分配超出预算: %d bytes/msg > %d bytes/msg", type, perMessage, budget));
+    }
+
+    private static TextWebSocketFrame connectFrame() {
+        return new TextWebSocketFrame("{\"type\":" + Protocol.MSG_CONNECT_REQUEST
+                + ",\"data\":{\"playerName\":\"alloc\"}}");
+    }
+
+    private static TextWebSocketFrame leaveFrame() {
+        return new TextWebSocketFrame("{\"type\":" + Protocol.MSG_PLAYER_LEAVE + ",\"data\":{}}");
+    }
+
+    private TextWebSocketFrame moveFrame(int i) {
+        return new TextWebSocketFrame("{\"type\":" + Protocol.MSG_PLAYER_MOVE
+                + ",\"data\":{\"playerId\":" + playerId + ",\"x\":" + (i % 800) + ".5,\"y\":"
+                + (i % 600) + ".5,\"direction\":" + (i % 360) + "}}");
+    }
+
+    private TextWebSocketFrame heartbeatFrame(int i) {
+        return new TextWebSocketFrame("{\"type\":" + Protocol.MSG_HEARTBEAT
+                + ",\"data\":{\"playerId\":" + playerId + ",\"timestamp\":" + (1700000000000L + i) + "}}");
+    }
+
+    private TextWebSocketFrame chatFrame(int i) {
+        return new TextWebSocketFrame("{\"type\":" + Protocol.MSG_CHAT_MESSAGE
+                + ",\"data\":{\"playerId\":" + playerId + ",\"message\":\"hello " + i + "\"}}");
+    }
+}
@@ -0,0 +1,151 @@
+package oily.top.network;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.Test;
+
+public class RateLimitHandlerTest {
+
+    @Test
+    public void peekTypeReadsTopLevelTypeField() {
+        assertEquals(3, peek("{\"type\":3,\"data\":{\"x\":1}}"));
+        assertEquals(99, peek("{ \"type\" : 99 , \"data\":{}}"));
+        assertEquals(-1, peek("{\"data\":{},\"kind\":3}"));
+        assertEquals(-1, peek("{\"type\":\"3\"}"));
+        assertEquals(-1, peek("{\"type\":3.5}"));
+        assertEquals(-1, peek("not json"));
+    }
+
+    @Test
+    public void peekTypeFindsTypeAfterData() {
+        // Godot 的 Json.Stringify 按键名排序，type 在 data 之后
+        assertEquals(3, peek("{\"data\":{\"direction\":1.5708,\"playerId\":12,\"x\":412.345,\"y\":298.765},\"type\":3}"));
+        assertEquals(7, peek("{\"data\":{\"message\":\"a,\\\"type\\\":3}\"},\"type\":7}"));
+    }
+
+    @Test
+    public void peekTypeIgnoresNestedAndDuplicateTypes() throws Exception {
+        assertEquals(-1, peek("{\"data\":{\"type\":3}}"));
+        assertEquals(3, peek("{\"data\":{\"type\":7,\"list\":[{\"type\":7}]},\"type\":3}"));
+        assertEquals(-1, peek("{\"data\":\"\\\"type\\\":3\"}"));
+        assertEquals(-1, peek("{\"type\":3,\"data\":{},\"type\":7}"));
+        // 转义后的键名在 Jackson 中同样是 type，且后出现的值生效
+        assertEquals(1, Protocol.deserialize("{\"type\":3,\"t\\u0079pe\":1,\"data\":{}}").type);
+        assertEquals(-1, peek("{\"type\":3,\"t\\u0079pe\":1,\"data\":{}}"));
+        assertEquals(-1, peek("{\"t\\u0079pe\":1,\"data\":{}}"));
+        // 嵌套对象和字符串值中的转义不影响分类
+        assertEquals(3, peek("{\"data\":{\"k\\u0065y\":\"a\\nb\"},\"type\":3}"));
+    }
+
+    @Test
+    public void dataFirstMovesUseMoveBudget() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RateLimitHandler());
+        int passed = 0;
+        for (int i = 0; i < 60; i++) {
+            channel.writeInbound(new TextWebSocketFrame(
+                    "{\"data\":{\"direction\":1.5708,\"playerId\":12,\"x\":412.345,\"y\":298.765},\"type\":3}"));
+            TextWebSocketFrame frame = channel.readInbound();
+            if (frame != null) {
+                frame.release();
+                passed++;
+            }
+        }
+        assertEquals(60, passed);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void unclassifiedFramesUseStrictestBudget() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RateLimitHandler());
+        long droppedBefore = RateLimitHandler.getDroppedFrames(RateLimitHandler.MessageClass.CONNECT);
+        int passed = 0;
+        for (int i = 0; i < 10; i++) {
+            channel.writeInbound(new TextWebSocketFrame("{\"data\":{\"message\":\"no type\"}}"));
+            TextWebSocketFrame frame = channel.readInbound();
+            if (frame != null) {
+                frame.release();
+                passed++;
+            }
+        }
+        // CONNECT 桶容量为3
+        assertEquals(3, passed);
+        assertEquals(7, RateLimitHandler.getDroppedFrames(RateLimitHandler.MessageClass.CONNECT) - droppedBefore);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void dropsFramesOverBudget() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RateLimitHandler());
+        long droppedBefore = RateLimitHandler.getDroppedFrames(RateLimitHandler.MessageClass.CHAT);
+
+        int passed = 0;
+        for (int i = 0; i < 10; i++) {
+            channel.writeInbound(chat());
+            TextWebSocketFrame frame = channel.readInbound();
+            if (frame != null) {
+                frame.release();
+                passed++;
+            }
+        }
+
+        // CHAT 桶容量为5，瞬间发送10条只放行5条
+        assertEquals(5, passed);
+        assertEquals(5, RateLimitHandler.getDroppedFrames(RateLimitHandler.MessageClass.CHAT) - droppedBefore);
+        assertTrue(RateLimitHandler.formatStats().contains("ratelimit_dropped_frames{class=\"chat\"} "
+                + RateLimitHandler.getDroppedFrames(RateLimitHandler.MessageClass.CHAT) + "\n"));
+        assertTrue(channel.isActive());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void classesHaveSeparateBudgets() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RateLimitHandler());
+        for (int i = 0; i < 10; i++) {
+            channel.writeInbound(chat());
+        }
+        channel.releaseInbound();
+
+        channel.writeInbound(new TextWebSocketFrame("{\"type\":3,\"data\":{\"playerId\":1,\"x\":1,\"y\":1}}"));
+        TextWebSocketFrame frame = channel.readInbound();
+        assertTrue(frame != null);
+        frame.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void disconnectsPersistentOffenders() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RateLimitHandler());
+        long disconnectsBefore = RateLimitHandler.getDisconnects();
+
+        for (int i = 0; i < 100 && channel.isActive(); i++) {
+            channel.writeInbound(chat());
+        }
+        channel.releaseInbound();
+
+        assertFalse(channel.isActive());
+        assertEquals(1, RateLimitHandler.getDisconnects() - disconnectsBefore);
+        assertTrue(RateLimitHandler.formatStats().contains(
+                "ratelimit_disconnects " + RateLimitHandler.getDisconnects() + "\n"));
+        channel.finishAndReleaseAll();
+    }
+
+    private static TextWebSocketFrame chat() {
+        return new TextWebSocketFrame("{\"type\":7,\"data\":{\"playerId\":1,\"message\":\"spam\"}}");
+    }
+
+    private static int peek(String json) {
+        ByteBuf buf = Unpooled.copiedBuffer(json, CharsetUtil.UTF_8);
+        try {
+            return RateLimitHandler.peekType(buf);
+        } finally {
+            buf.release();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package oily.top.network;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.channel.DefaultChannelId;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import java.util.List;
+import java.util.Map;
+import oily.top.game.Player;
+import oily.top.game.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SessionResumeTest {
+
+    private final World world = World.getInstance();
+    private final SessionManager sessions = SessionManager.getInstance();
+    private long defaultGraceSeconds;
+
+    @BeforeEach
+    public void enableParking() {
+        defaultGraceSeconds = sessions.getResumeGraceSeconds();
+        sessions.setResumeGraceSeconds(30);
+    }
+
+    @AfterEach
+    public void restoreParking() {
+        sessions.setResumeGraceSeconds(defaultGraceSeconds);
+    }
+
+    @Test
+    public void disconnectRemovesPlayerWhenParkingDisabled() throws Exception {
+        // 默认不保留，客户端支持重连前断线和退出一样
+        assertEquals(0, defaultGraceSeconds);
+        sessions.setResumeGraceSeconds(0);
+
+        EmbeddedChannel first = newChannel();
+        first.writeInbound(frame(Protocol.MSG_CONNECT_REQUEST, "\"playerName\":\"gone\""));
+        Map<String, Object> connect = readData(first, Protocol.MSG_CONNECT_RESPONSE);
+        int playerId = ((Number) connect.get("playerId")).intValue();
+        first.finishAndReleaseAll();
+        assertNull(world.getPlayer(playerId));
+
+        EmbeddedChannel second = newChannel();
+        second.writeInbound(frame(Protocol.MSG_RESUME_REQUEST,
+                "\"resumeToken\":\"" + connect.get("resumeToken") + "\""));
+        readData(second, 999);
+        second.finishAndReleaseAll();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void resumeReattachesPlayerAndSendsOnlyChanges() throws Exception {
+        EmbeddedChannel first = newChannel();
+        first.writeInbound(frame(Protocol.MSG_CONNECT_REQUEST, "\"playerName\":\"resume\""));
+        Map<String, Object> connect = readData(first, Protocol.MSG_CONNECT_RESPONSE);
+        Map<String, Object> worldState = readData(first, Protocol.MSG_WORLD_STATE);
+        int playerId = ((Number) connect.get("playerId")).intValue();
+        String token = (String) connect.get("resumeToken");
+        long version = ((Number) worldState.get("version")).longValue();
+        assertNotNull(token);
+
+        Player player = world.getPlayer(playerId);
+        first.finishAndReleaseAll();
+        // 断线后玩家仍在世界中
+        assertSame(player, world.getPlayer(playerId));
+
+        // 断线期间另一个玩家加入并移动
+        EmbeddedChannel other = newChannel();
+        other.writeInbound(frame(Protocol.MSG_CONNECT_REQUEST, "\"playerName\":\"other\""));
+        int otherId = ((Number) readData(other, Protocol.MSG_CONNECT_RESPONSE).get("playerId")).intValue();
+        other.releaseOutbound();
+        other.writeInbound(frame(Protocol.MSG_PLAYER_MOVE,
+                "\"playerId\":" + otherId + ",\"x\":10.0,\"y\":20.0,\"direction\":0"));
+
+        EmbeddedChannel second = newChannel();
+        second.writeInbound(frame(Protocol.MSG_RESUME_REQUEST,
+                "\"resumeToken\":\"" + token + "\",\"lastVersion\":" + version));
+        Map<String, Object> resume = readData(second, Protocol.MSG_RESUME_RESPONSE);
+        Map<String, Object> delta = readData(second, Protocol.MSG_WORLD_DELTA);
+
+        assertEquals(playerId, ((Number) resume.get("playerId")).intValue());
+        assertSame(player, world.getPlayer(playerId));
+        List<Map<String, Object>> changed = (List<Map<String, Object>>) delta.get("players");
+        assertEquals(1, changed.size());
+        assertEquals(otherId, ((Number) changed.get(0).get("id")).intValue());
+        assertTrue(((List<?>) delta.get("removed")).isEmpty());
+
+        second.writeInbound(frame(Protocol.MSG_PLAYER_LEAVE, ""));
+        other.writeInbound(frame(Protocol.MSG_PLAYER_LEAVE, ""));
+        second.finishAndReleaseAll();
+        other.finishAndReleaseAll();
+        assertNull(world.getPlayer(playerId));
+        assertNull(world.getPlayer(otherId));
+    }
+
+    @Test
+    public void resumeWithoutAckSendsFullWorldState() throws Exception {
+        EmbeddedChannel first = newChannel();
+        first.writeInbound(frame(Protocol.MSG_CONNECT_REQUEST, "\"playerName\":\"noack\""));
+        Map<String, Object> connect = readData(first, Protocol.MSG_CONNECT_RESPONSE);
+        // 连接在世界状态送达前断开，客户端从未确认版本
+        first.finishAndReleaseAll();
+
+        EmbeddedChannel second = newChannel();
+        second.writeInbound(frame(Protocol.MSG_RESUME_REQUEST,
+                "\"resumeToken\":\"" + connect.get("resumeToken") + "\""));
+        readData(second, Protocol.MSG_RESUME_RESPONSE);
+        Map<String, Object> worldState = readData(second, Protocol.MSG_WORLD_STATE);
+        assertNotNull(worldState.get("players"));
+
+        second.writeInbound(frame(Protocol.MSG_PLAYER_LEAVE, ""));
+        second.finishAndReleaseAll();
+    }
+
+    @Test
+    public void heartbeatAckIsUsedForDelta() throws Exception {
+        EmbeddedChannel first = newChannel();
+        first.writeInbound(frame(Protocol.MSG_CONNECT_REQUEST, "\"playerName\":\"ack\""));
+        Map<String, Object> connect = readData(first, Protocol.MSG_CONNECT_RESPONSE);
+        Map<String, Object> worldState = readData(first, Protocol.MSG_WORLD_STATE);
+        int playerId = ((Number) connect.get("playerId")).intValue();
+        long version = ((Number) worldState.get("version")).longValue();
+
+        // 超过已发送版本的确认被忽略
+        first.writeInbound(frame(Protocol.MSG_HEARTBEAT,
+                "\"playerId\":" + playerId + ",\"timestamp\":1,\"version\":" + (version + 1000)));
+        first.writeInbound(frame(Protocol.MSG_HEARTBEAT,
+                "\"playerId\":" + playerId + ",\"timestamp\":2,\"version\":" + version));
+        first.finishAndReleaseAll();
+
+        EmbeddedChannel second = newChannel();
+        second.writeInbound(frame(Protocol.MSG_RESUME_REQUEST,
+                "\"resumeToken\":\"" + connect.get("resumeToken") + "\""));
+        readData(second, Protocol.MSG_RESUME_RESPONSE);
+        readData(second, Protocol.MSG_WORLD_DELTA);
+
+        second.writeInbound(frame(Protocol.MSG_PLAYER_LEAVE, ""));
+        second.finishAndReleaseAll();
+    }
+
+    @Test
+    public void staleTokenKeepsCurrentPlayer() throws Exception {
+        EmbeddedChannel channel = newChannel();
+        channel.writeInbound(frame(Protocol.MSG_CONNECT_REQUEST, "\"playerName\":\"live\""));
+        int playerId = ((Number) readData(channel, Protocol.MSG_CONNECT_RESPONSE).get("playerId")).intValue();
+        channel.releaseOutbound();
+
+        channel.writeInbound(frame(Protocol.MSG_RESUME_REQUEST, "\"resumeToken\":\"stale\""));
+        readData(channel, 999);
+        assertNotNull(world.getPlayer(playerId));
+
+        channel.writeInbound(frame(Protocol.MSG_PLAYER_LEAVE, ""));
+        assertNull(world.getPlayer(playerId));
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void unknownTokenIsRejected() throws Exception {
+        EmbeddedChannel channel = newChannel();
+        channel.writeInbound(frame(Protocol.MSG_RESUME_REQUEST, "\"resumeToken\":\"missing\""));
+        Map<String, Object> error = readData(channel, 999);
+        assertNotNull(error.get("error"));
+        channel.finishAndReleaseAll();
+    }
+
+    private static EmbeddedChannel newChannel() {
+        return new EmbeddedChannel(DefaultChannelId.newInstance(), new GameHandler());
+    }
+
+    private static TextWebSocketFrame frame(int type, String data) {
+        return new TextWebSocketFrame("{\"type\":" + type + ",\"data\":{" + data + "}}");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> readData(EmbeddedChannel channel, int expectedType) throws Exception {
+        TextWebSocketFrame frame = channel.readOutbound();
+        assertNotNull(frame);
+        try {
+            Protocol.Message msg = Protocol.deserialize(frame.text());
+            assertEquals(expectedType, msg.type);
+            return (Map<String, Object>) msg.data;
+        } finally {
+            frame.release();
+        }
+    }
+}